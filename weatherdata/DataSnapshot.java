@@ -0,0 +1,174 @@
+package algo.weatherdata;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Immutable, array backed view of the loaded weather data. The bounds of the
+ * dataset are looked up once when the snapshot is created so that planning a
+ * query never has to touch the TreeMap again.
+ */
+class DataSnapshot
+{
+	/**
+	 * MeasurePoints sorted by dateTime (ascending), same order as the TreeMap.
+	 */
+	private final MeasurePoint[] points;
+	private final LocalDateTime first;
+	private final LocalDateTime last;
+
+	/**
+	 * Create a snapshot from measure points that are already sorted by dateTime.
+	 *
+	 * @param sortedPoints measure points sorted by dateTime (ascending)
+	 */
+	DataSnapshot(Collection<MeasurePoint> sortedPoints)
+	{
+		points = sortedPoints.toArray(new MeasurePoint[0]);
+		if (points.length > 0)
+		{
+			first = points[0].getDateTime();
+			last = points[points.length - 1].getDateTime();
+		}
+		else
+		{
+			first = null;
+			last = null;
+		}
+	}
+
+	/**
+	 * @return number of measure points in the snapshot
+	 */
+	int size()
+	{
+		return points.length;
+	}
+
+	/**
+	 * @param index position in the snapshot
+	 * @return the MeasurePoint at the index
+	 */
+	MeasurePoint get(int index)
+	{
+		return points[index];
+	}
+
+	/**
+	 * @return the first dateTime in the dataset, null if the dataset is empty
+	 */
+	LocalDateTime getFirst()
+	{
+		return first;
+	}
+
+	/**
+	 * @return the last dateTime in the dataset, null if the dataset is empty
+	 */
+	LocalDateTime getLast()
+	{
+		return last;
+	}
+
+	/**
+	 * Validate a date range against the cached bounds and resolve it to array
+	 * offsets. Nothing is printed, the outcome is described by the returned plan.
+	 *
+	 * @param dateFrom start date inclusive
+	 * @param dateTo   end date inclusive
+	 * @param clamp    true = shrink a range that reaches outside the dataset to the
+	 *                 available data. false = reject it
+	 * @return the query plan
+	 */
+	QueryPlan plan(LocalDate dateFrom, LocalDate dateTo, boolean clamp)
+	{
+		// Nothing to search in
+		if (points.length == 0)
+		{
+			return QueryPlan.rejected(QueryPlan.Status.EMPTY_DATASET, "No data has been loaded.", dateFrom, dateTo);
+		}
+		// End date is before start date
+		if (dateFrom.isAfter(dateTo))
+		{
+			return QueryPlan.rejected(QueryPlan.Status.END_BEFORE_START,
+					"End date appears to be before start date. Try again.", dateFrom, dateTo);
+		}
+
+		LocalDate firstDate = first.toLocalDate();
+		LocalDate lastDate = last.toLocalDate();
+		LocalDate from = dateFrom;
+		LocalDate to = dateTo;
+		boolean clamped = false;
+
+		// Start date outside of dataset (before)
+		if (firstDate.isAfter(from))
+		{
+			if (!clamp)
+			{
+				return QueryPlan.rejected(QueryPlan.Status.START_BEFORE_DATA,
+						"Start date appears to be before first available data. First data in dataset: " + first,
+						dateFrom, dateTo);
+			}
+			from = firstDate;
+			clamped = true;
+		}
+		// Start date outside of dataset (after). Clamping can not help here.
+		if (lastDate.isBefore(from))
+		{
+			return QueryPlan.rejected(QueryPlan.Status.START_AFTER_DATA,
+					"Start date appears to be after the last available data. Last data in dataset: " + last, dateFrom,
+					dateTo);
+		}
+		// End date outside of dataset (after)
+		if (lastDate.isBefore(to))
+		{
+			if (!clamp)
+			{
+				return QueryPlan.rejected(QueryPlan.Status.END_AFTER_DATA,
+						"End date appears to be after the last available data. Last data in dataset: " + last,
+						dateFrom, dateTo);
+			}
+			to = lastDate;
+			clamped = true;
+		}
+		// Range ends before the dataset starts, nothing left after clamping
+		if (from.isAfter(to))
+		{
+			return QueryPlan.rejected(QueryPlan.Status.END_BEFORE_DATA,
+					"End date appears to be before first available data. First data in dataset: " + first, dateFrom,
+					dateTo);
+		}
+
+		// Resolve the range to offsets once, [fromIndex, toIndex)
+		int fromIndex = lowerBound(from.atStartOfDay());
+		int toIndex = lowerBound(to.plusDays(1).atStartOfDay());
+		return new QueryPlan(clamped ? QueryPlan.Status.CLAMPED : QueryPlan.Status.OK, null, from, to, this,
+				fromIndex, toIndex);
+	}
+
+	/**
+	 * Binary search for the first position whose dateTime is not before the key.
+	 *
+	 * @param key dateTime to search for
+	 * @return index of the first point at or after key, size() if there is none
+	 */
+	private int lowerBound(LocalDateTime key)
+	{
+		int low = 0;
+		int high = points.length;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (points[mid].getDateTime().isBefore(key))
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
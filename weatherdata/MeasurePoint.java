@@ -26,6 +26,12 @@ public class MeasurePoint
 	private boolean approved;
 	private LocalDateTime dateTime;
 
+	/**
+	 * 10^0 - 10^15, all exact as double
+	 */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15 };
+
 	/**
 	 * Constructor. Input is an array preferred size = 4 because we only handle the
 	 * first 4 indexes of the array.
@@ -34,13 +40,210 @@ public class MeasurePoint
 	 */
 	public MeasurePoint(String[] splitted)
 	{
-		date = LocalDate.parse(splitted[0]);
-		time = LocalTime.parse(splitted[1]);
+		date = parseDate(splitted[0]);
+		time = parseTime(splitted[1]);
 		temperature = Double.parseDouble(splitted[2]);
 		approved = splitted[3].contentEquals("G");
 		dateTime = LocalDateTime.of(date, time);
 	}
 
+	/**
+	 * Constructor for values that are already parsed.
+	 * 
+	 * @param date        the date
+	 * @param time        the time
+	 * @param temperature the temperature
+	 * @param approved    true if the value is approved
+	 */
+	private MeasurePoint(LocalDate date, LocalTime time, double temperature, boolean approved)
+	{
+		this.date = date;
+		this.time = time;
+		this.temperature = temperature;
+		this.approved = approved;
+		dateTime = LocalDateTime.of(date, time);
+	}
+
+	/**
+	 * Create a MeasurePoint from a line of a data file
+	 * (YYYY-MM-DD;HH:MM:SS;temperature;quality). The fields are read where they
+	 * are in the line, without splitting it into Strings first, and the date
+	 * object of the previous line is reused when the date is the same. This is
+	 * what makes loading fast, a day has 24 lines. A line in any other shape is
+	 * split and handled like the String[] constructor does, with the same result.
+	 * 
+	 * @param line     line from a data file
+	 * @param previous MeasurePoint of the previous line, may be null
+	 * @return the MeasurePoint
+	 */
+	public static MeasurePoint parse(String line, MeasurePoint previous)
+	{
+		// The temperature ends at the third ";"
+		int end = line.indexOf(';', 20);
+		if (end > 20 && line.charAt(10) == ';' && line.charAt(19) == ';')
+		{
+			LocalDate date = (previous != null && isDate(line, previous.date)) ? previous.date : readDate(line, 0);
+			LocalTime time = readTime(line, 11);
+			double temperature = readDecimal(line, 20, end);
+			if (date != null && time != null && !Double.isNaN(temperature))
+			{
+				// Quality is everything after the third ";" and has to be exactly G
+				boolean approved = line.length() == end + 2 && line.charAt(end + 1) == 'G';
+				return new MeasurePoint(date, time, temperature, approved);
+			}
+		}
+		return new MeasurePoint(line.split(";", 4));
+	}
+
+	/**
+	 * Parse a date in the format of the data files (YYYY-MM-DD) without going
+	 * through a DateTimeFormatter, which is what makes loading slow. Anything else
+	 * is left to LocalDate.parse.
+	 * 
+	 * @param text the date
+	 * @return the parsed date
+	 */
+	private static LocalDate parseDate(String text)
+	{
+		LocalDate date = text.length() == 10 ? readDate(text, 0) : null;
+		return date != null ? date : LocalDate.parse(text);
+	}
+
+	/**
+	 * Parse a time in the format of the data files (HH:MM:SS), same idea as
+	 * parseDate.
+	 * 
+	 * @param text the time
+	 * @return the parsed time
+	 */
+	private static LocalTime parseTime(String text)
+	{
+		LocalTime time = text.length() == 8 ? readTime(text, 0) : null;
+		return time != null ? time : LocalTime.parse(text);
+	}
+
+	/**
+	 * @param text  text to read from
+	 * @param begin where the date starts
+	 * @return the date at begin (YYYY-MM-DD), null if there is none
+	 */
+	private static LocalDate readDate(String text, int begin)
+	{
+		if (text.length() >= begin + 10 && text.charAt(begin + 4) == '-' && text.charAt(begin + 7) == '-')
+		{
+			int year = digits(text, begin, begin + 4);
+			int month = digits(text, begin + 5, begin + 7);
+			int day = digits(text, begin + 8, begin + 10);
+			if (year >= 0 && month >= 0 && day >= 0)
+			{
+				return LocalDate.of(year, month, day);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param text text to read from
+	 * @param date date to compare with
+	 * @return true if text starts with date (YYYY-MM-DD)
+	 */
+	private static boolean isDate(String text, LocalDate date)
+	{
+		return text.charAt(4) == '-' && text.charAt(7) == '-' && digits(text, 8, 10) == date.getDayOfMonth()
+				&& digits(text, 5, 7) == date.getMonthValue() && digits(text, 0, 4) == date.getYear();
+	}
+
+	/**
+	 * @param text  text to read from
+	 * @param begin where the time starts
+	 * @return the time at begin (HH:MM:SS), null if there is none
+	 */
+	private static LocalTime readTime(String text, int begin)
+	{
+		if (text.length() >= begin + 8 && text.charAt(begin + 2) == ':' && text.charAt(begin + 5) == ':')
+		{
+			int hour = digits(text, begin, begin + 2);
+			int minute = digits(text, begin + 3, begin + 5);
+			int second = digits(text, begin + 6, begin + 8);
+			if (hour >= 0 && minute >= 0 && second >= 0)
+			{
+				return LocalTime.of(hour, minute, second);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Read a plain decimal number like -12.3. The digits are read as a long and
+	 * divided by a power of ten once, both exact, so the result is the same double
+	 * as Double.parseDouble gives.
+	 * 
+	 * @param text  text to read from
+	 * @param begin first index inclusive
+	 * @param end   last index exclusive
+	 * @return the number, NaN if it is not a plain decimal number
+	 */
+	private static double readDecimal(String text, int begin, int end)
+	{
+		boolean negative = text.charAt(begin) == '-';
+		boolean point = false;
+		long value = 0;
+		int integers = 0;
+		int decimals = 0;
+		for (int i = negative ? begin + 1 : begin; i < end; i++)
+		{
+			char c = text.charAt(i);
+			if (c >= '0' && c <= '9')
+			{
+				value = value * 10 + (c - '0');
+				if (point)
+				{
+					decimals++;
+				}
+				else
+				{
+					integers++;
+				}
+			}
+			else if (c == '.' && !point)
+			{
+				point = true;
+			}
+			else
+			{
+				return Double.NaN;
+			}
+		}
+		// Needs digits on both sides of the point, and few enough to be exact
+		if (integers == 0 || (point && decimals == 0) || integers + decimals > 15)
+		{
+			return Double.NaN;
+		}
+		double result = decimals > 0 ? value / POWERS_OF_TEN[decimals] : value;
+		return negative ? -result : result;
+	}
+
+	/**
+	 * @param text  text to read from
+	 * @param begin first index inclusive
+	 * @param end   last index exclusive
+	 * @return the number, -1 if there is something else than digits
+	 */
+	private static int digits(String text, int begin, int end)
+	{
+		int value = 0;
+		for (int i = begin; i < end; i++)
+		{
+			char c = text.charAt(i);
+			if (c < '0' || c > '9')
+			{
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
 	/**
 	 * @return the date (LocalDate)
 	 */
@@ -0,0 +1,144 @@
+package algo.weatherdata;
+
+import java.time.LocalDate;
+
+/**
+ * Result of validating a date range against the loaded data. A valid plan
+ * carries the (possibly clamped) dates and the offsets of the range in the
+ * snapshot it was planned against. An invalid plan carries a status and a
+ * message that the caller may present to the user.
+ */
+public class QueryPlan
+{
+	/**
+	 * Outcome of the validation.
+	 */
+	public enum Status
+	{
+		/** Range is inside the dataset */
+		OK,
+		/** Range reached outside the dataset and was shrunk to the available data */
+		CLAMPED,
+		/** No data has been loaded */
+		EMPTY_DATASET,
+		/** End date is before start date */
+		END_BEFORE_START,
+		/** Start date is before the first available data */
+		START_BEFORE_DATA,
+		/** Start date is after the last available data */
+		START_AFTER_DATA,
+		/** End date is after the last available data */
+		END_AFTER_DATA,
+		/** End date is before the first available data */
+		END_BEFORE_DATA
+	}
+
+	private final Status status;
+	private final String message;
+	private final LocalDate dateFrom;
+	private final LocalDate dateTo;
+	private final DataSnapshot snapshot;
+	private final int fromIndex;
+	private final int toIndex;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param status    outcome of the validation
+	 * @param message   reason the range was rejected, null if it was accepted
+	 * @param dateFrom  start date inclusive
+	 * @param dateTo    end date inclusive
+	 * @param snapshot  snapshot the plan was made against, null if rejected
+	 * @param fromIndex first index in the snapshot, inclusive
+	 * @param toIndex   last index in the snapshot, exclusive
+	 */
+	QueryPlan(Status status, String message, LocalDate dateFrom, LocalDate dateTo, DataSnapshot snapshot,
+			int fromIndex, int toIndex)
+	{
+		this.status = status;
+		this.message = message;
+		this.dateFrom = dateFrom;
+		this.dateTo = dateTo;
+		this.snapshot = snapshot;
+		this.fromIndex = fromIndex;
+		this.toIndex = toIndex;
+	}
+
+	/**
+	 * Create a plan for a range that was rejected.
+	 *
+	 * @param status   reason for the rejection
+	 * @param message  message describing the rejection
+	 * @param dateFrom requested start date
+	 * @param dateTo   requested end date
+	 * @return the rejected plan
+	 */
+	static QueryPlan rejected(Status status, String message, LocalDate dateFrom, LocalDate dateTo)
+	{
+		return new QueryPlan(status, message, dateFrom, dateTo, null, 0, 0);
+	}
+
+	/**
+	 * @return true if the range can be queried (OK or CLAMPED). false otherwise.
+	 */
+	public boolean isValid()
+	{
+		return status == Status.OK || status == Status.CLAMPED;
+	}
+
+	/**
+	 * @return the status of the plan
+	 */
+	public Status getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * @return message describing why the range was rejected, null if it is valid
+	 */
+	public String getMessage()
+	{
+		return message;
+	}
+
+	/**
+	 * @return the start date (clamped if status is CLAMPED)
+	 */
+	public LocalDate getDateFrom()
+	{
+		return dateFrom;
+	}
+
+	/**
+	 * @return the end date (clamped if status is CLAMPED)
+	 */
+	public LocalDate getDateTo()
+	{
+		return dateTo;
+	}
+
+	/**
+	 * @return the snapshot the plan was made against, null if rejected
+	 */
+	DataSnapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
+	/**
+	 * @return first index of the range in the snapshot, inclusive
+	 */
+	int getFromIndex()
+	{
+		return fromIndex;
+	}
+
+	/**
+	 * @return last index of the range in the snapshot, exclusive
+	 */
+	int getToIndex()
+	{
+		return toIndex;
+	}
+}
@@ -0,0 +1,44 @@
+package algo.weatherdata;
+
+import java.time.LocalDate;
+
+/**
+ * Receives query results from WeatherDataHandler one at a time, as they are
+ * computed, so that a caller can write them out without collecting them first.
+ * Every method does nothing by default, override the ones for the queries you
+ * run.
+ */
+public interface ResultSink
+{
+	/**
+	 * Called once per date, sorted by date (ascending).
+	 *
+	 * @param date    the date
+	 * @param average average temperature for the date (degrees Celsius), not
+	 *                rounded
+	 */
+	default void averageTemperature(LocalDate date, double average)
+	{
+	}
+
+	/**
+	 * Called once per date, sorted by number of missing values (descending).
+	 *
+	 * @param date    the date
+	 * @param missing number of missing values for the date
+	 */
+	default void missingValues(LocalDate date, int missing)
+	{
+	}
+
+	/**
+	 * Called once per query.
+	 *
+	 * @param dateFrom start date of the period inclusive
+	 * @param dateTo   end date of the period inclusive
+	 * @param approved share of approved values in the period (0.0 - 1.0)
+	 */
+	default void approvedValues(LocalDate dateFrom, LocalDate dateTo, double approved)
+	{
+	}
+}
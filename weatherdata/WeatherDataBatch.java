@@ -0,0 +1,498 @@
+package algo.weatherdata;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Non-interactive mode for the Weather Data application. Runs one kind of query
+ * over one or more station files and streams the results as CSV or JSON lines,
+ * so it can be used from scripts and pipelines.
+ *
+ * Usage: --batch &lt;file|directory&gt; &lt;average|missing|approved&gt;
+ * [--format csv|json] [--clamp] [&lt;from&gt; &lt;to&gt; ...]
+ *
+ * If no dates are given the ranges are read from stdin, one "from to" pair per
+ * line. Throughput is reported on stderr so it does not mix with the results.
+ */
+public class WeatherDataBatch
+{
+	/**
+	 * Exit codes
+	 */
+	public static final int EXIT_OK = 0;
+	public static final int EXIT_PARTIAL = 1;
+	public static final int EXIT_USAGE = 2;
+	public static final int EXIT_IO = 3;
+
+	private static final String USAGE = "Usage: --batch <file|directory> <average|missing|approved>"
+			+ " [--format csv|json] [--clamp] [<from> <to> ...]\n"
+			+ "Dates are YYYY-MM-DD. Without dates, ranges are read from stdin, one \"from to\" per line.";
+
+	private InputStream _in;
+	private OutputStream _out;
+	private PrintStream _err;
+
+	/**
+	 * Construct a batch runner.
+	 *
+	 * @param in  where ranges are read from if none are given as arguments
+	 * @param out where results are written
+	 * @param err where errors and throughput are reported
+	 */
+	public WeatherDataBatch(InputStream in, OutputStream out, PrintStream err)
+	{
+		_in = in;
+		_out = out;
+		_err = err;
+	}
+
+	/**
+	 * Run the batch.
+	 *
+	 * @param args arguments, without the leading --batch
+	 * @return EXIT_OK if everything went fine, EXIT_PARTIAL if a station could not
+	 *         be loaded or a range was rejected, EXIT_USAGE for bad arguments and
+	 *         EXIT_IO if nothing could be read or written
+	 */
+	public int run(String[] args)
+	{
+		String path = null;
+		String query = null;
+		String format = "csv";
+		boolean clamp = false;
+		List<String> dates = new ArrayList<>();
+
+		// Parse arguments
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--format"))
+			{
+				// --format needs a value
+				if (i + 1 >= args.length)
+				{
+					_err.println("--format needs a value (csv or json)");
+					_err.println(USAGE);
+					return EXIT_USAGE;
+				}
+				format = args[++i];
+			}
+			else if (args[i].equals("--clamp"))
+			{
+				clamp = true;
+			}
+			// Do not take a misspelled flag for the path, query or a date
+			else if (args[i].startsWith("--"))
+			{
+				_err.println("Unknown option: " + args[i]);
+				_err.println(USAGE);
+				return EXIT_USAGE;
+			}
+			else if (path == null)
+			{
+				path = args[i];
+			}
+			else if (query == null)
+			{
+				query = args[i];
+			}
+			else
+			{
+				dates.add(args[i]);
+			}
+		}
+		if (path == null || query == null || !(query.equals("average") || query.equals("missing")
+				|| query.equals("approved")) || !(format.equals("csv") || format.equals("json")))
+		{
+			_err.println(USAGE);
+			return EXIT_USAGE;
+		}
+
+		// Find the station files
+		List<Path> stations;
+		try
+		{
+			stations = findStations(Paths.get(path));
+		}
+		catch (IOException e)
+		{
+			_err.println("Could not read " + path + ": " + e.getMessage());
+			return EXIT_IO;
+		}
+		if (stations.isEmpty())
+		{
+			_err.println("No station files found in " + path);
+			return EXIT_IO;
+		}
+
+		// Get the ranges, from arguments or stdin
+		List<LocalDate[]> ranges;
+		try
+		{
+			ranges = dates.isEmpty() ? readRanges() : parseRanges(dates);
+		}
+		catch (IOException e)
+		{
+			_err.println("Could not read ranges from stdin: " + e.getMessage());
+			return EXIT_IO;
+		}
+		catch (IllegalArgumentException e)
+		{
+			_err.println(e.getMessage());
+			_err.println(USAGE);
+			return EXIT_USAGE;
+		}
+
+		// Results are written through a buffer that is flushed after each station
+		PrintWriter writer = new PrintWriter(
+				new BufferedWriter(new OutputStreamWriter(_out, StandardCharsets.UTF_8), 1 << 16));
+		BatchSink sink = format.equals("json") ? new JsonSink(writer) : new CsvSink(writer);
+		sink.header(query);
+
+		int exitCode = EXIT_OK;
+		int loaded = 0;
+		long measures = 0;
+		long start = System.nanoTime();
+
+		for (Path station : stations)
+		{
+			// Each station gets its own handler, the data must not be mixed
+			WeatherDataHandler weatherData = new WeatherDataHandler();
+			try
+			{
+				weatherData.loadData(station.toString());
+			}
+			catch (IOException | RuntimeException e)
+			{
+				_err.println("Could not load " + station + ": " + e);
+				exitCode = EXIT_PARTIAL;
+				continue;
+			}
+			loaded++;
+			measures += weatherData.size();
+			sink.station = station.getFileName().toString();
+
+			for (LocalDate[] range : ranges)
+			{
+				QueryPlan plan = weatherData.planQuery(range[0], range[1], clamp);
+				if (!plan.isValid())
+				{
+					_err.println(sink.station + " " + range[0] + " " + range[1] + ": " + plan.getMessage());
+					exitCode = EXIT_PARTIAL;
+					continue;
+				}
+				switch (query)
+				{
+				case "average":
+					weatherData.averageTemperatures(plan, sink);
+					break;
+				case "missing":
+					weatherData.missingValues(plan, sink);
+					break;
+				case "approved":
+					weatherData.approvedValues(plan, sink);
+					break;
+				}
+			}
+			// Hand the results of the station on right away, so a pipeline sees progress
+			// and nothing is lost if the process is killed later on
+			writer.flush();
+		}
+		writer.flush();
+		long elapsed = System.nanoTime() - start;
+
+		// PrintWriter does not throw, check for errors once instead
+		if (writer.checkError())
+		{
+			_err.println("Could not write results");
+			return EXIT_IO;
+		}
+		if (loaded == 0)
+		{
+			return EXIT_IO;
+		}
+
+		// Report throughput on stderr
+		double seconds = elapsed / 1e9;
+		_err.println(String.format(Locale.ROOT,
+				"%d station(s), %d measures, %d range(s), %d row(s) in %.3f s (%.0f measures/s)", loaded, measures,
+				ranges.size(), sink.rows, seconds, seconds > 0 ? measures / seconds : 0.0));
+		return exitCode;
+	}
+
+	/**
+	 * Find station files. A file is used as is, a directory gives all .csv files
+	 * in it sorted by name.
+	 *
+	 * @param path file or directory
+	 * @return the station files
+	 * @throws IOException if the directory can not be listed
+	 */
+	private List<Path> findStations(Path path) throws IOException
+	{
+		if (!Files.isDirectory(path))
+		{
+			if (!Files.isReadable(path))
+			{
+				throw new IOException("file not found or not readable");
+			}
+			List<Path> single = new ArrayList<>();
+			single.add(path);
+			return single;
+		}
+		try (Stream<Path> files = Files.list(path))
+		{
+			return files.filter(Files::isRegularFile).filter(f -> f.getFileName().toString().endsWith(".csv"))
+					.sorted().collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Read ranges from stdin, one "from to" pair per line. The dates may be
+	 * separated by whitespace, comma or semicolon. Empty lines and lines starting
+	 * with # are skipped.
+	 *
+	 * @return the ranges
+	 * @throws IOException if stdin can not be read
+	 */
+	private List<LocalDate[]> readRanges() throws IOException
+	{
+		List<String> dates = new ArrayList<>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(_in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null)
+		{
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+			{
+				continue;
+			}
+			String[] splitted = line.split("[\\s,;]+");
+			if (splitted.length != 2)
+			{
+				throw new IllegalArgumentException("Expected \"from to\" but got: " + line);
+			}
+			dates.add(splitted[0]);
+			dates.add(splitted[1]);
+		}
+		return parseRanges(dates);
+	}
+
+	/**
+	 * Pair up dates to ranges.
+	 *
+	 * @param dates dates as strings (YYYY-MM-DD), from and to after each other
+	 * @return the ranges
+	 * @throws IllegalArgumentException if a date is invalid or one is missing
+	 */
+	private List<LocalDate[]> parseRanges(List<String> dates)
+	{
+		if (dates.isEmpty() || dates.size() % 2 != 0)
+		{
+			throw new IllegalArgumentException("Dates must be given in pairs of from and to");
+		}
+		List<LocalDate[]> ranges = new ArrayList<>(dates.size() / 2);
+		for (int i = 0; i < dates.size(); i += 2)
+		{
+			try
+			{
+				ranges.add(new LocalDate[] { LocalDate.parse(dates.get(i)), LocalDate.parse(dates.get(i + 1)) });
+			}
+			catch (DateTimeParseException e)
+			{
+				throw new IllegalArgumentException("Invalid date: " + e.getParsedString());
+			}
+		}
+		return ranges;
+	}
+
+	/**
+	 * Sink that writes results for the current station and counts the rows.
+	 */
+	private abstract static class BatchSink implements ResultSink
+	{
+		protected final PrintWriter writer;
+		protected String station;
+		protected long rows;
+
+		BatchSink(PrintWriter writer)
+		{
+			this.writer = writer;
+		}
+
+		/**
+		 * Write whatever comes before the first row.
+		 *
+		 * @param query the query kind
+		 */
+		abstract void header(String query);
+	}
+
+	/**
+	 * Writes CSV with a header row.
+	 */
+	private static class CsvSink extends BatchSink
+	{
+		CsvSink(PrintWriter writer)
+		{
+			super(writer);
+		}
+
+		@Override
+		void header(String query)
+		{
+			switch (query)
+			{
+			case "average":
+				writer.print("station,date,average\n");
+				break;
+			case "missing":
+				writer.print("station,date,missing\n");
+				break;
+			case "approved":
+				writer.print("station,from,to,approved\n");
+				break;
+			}
+		}
+
+		@Override
+		public void averageTemperature(LocalDate date, double average)
+		{
+			writer.print(quote(station) + "," + date + "," + round(average) + "\n");
+			rows++;
+		}
+
+		@Override
+		public void missingValues(LocalDate date, int missing)
+		{
+			writer.print(quote(station) + "," + date + "," + missing + "\n");
+			rows++;
+		}
+
+		@Override
+		public void approvedValues(LocalDate dateFrom, LocalDate dateTo, double approved)
+		{
+			writer.print(quote(station) + "," + dateFrom + "," + dateTo + "," + round(approved * 100.0) + "\n");
+			rows++;
+		}
+
+		/**
+		 * Quote a field if it contains a comma, quote or line break.
+		 */
+		private static String quote(String field)
+		{
+			if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0)
+			{
+				return field;
+			}
+			return "\"" + field.replace("\"", "\"\"") + "\"";
+		}
+	}
+
+	/**
+	 * Writes one JSON object per line (JSON lines), so rows can be consumed
+	 * while they are written.
+	 */
+	private static class JsonSink extends BatchSink
+	{
+		JsonSink(PrintWriter writer)
+		{
+			super(writer);
+		}
+
+		@Override
+		void header(String query)
+		{
+			// JSON lines have no header
+		}
+
+		@Override
+		public void averageTemperature(LocalDate date, double average)
+		{
+			writer.print("{\"station\":" + string(station) + ",\"date\":\"" + date + "\",\"average\":"
+					+ number(average) + "}\n");
+			rows++;
+		}
+
+		@Override
+		public void missingValues(LocalDate date, int missing)
+		{
+			writer.print("{\"station\":" + string(station) + ",\"date\":\"" + date + "\",\"missing\":" + missing
+					+ "}\n");
+			rows++;
+		}
+
+		@Override
+		public void approvedValues(LocalDate dateFrom, LocalDate dateTo, double approved)
+		{
+			writer.print("{\"station\":" + string(station) + ",\"from\":\"" + dateFrom + "\",\"to\":\"" + dateTo
+					+ "\",\"approved\":" + number(approved * 100.0) + "}\n");
+			rows++;
+		}
+
+		/**
+		 * Write a rounded JSON number, null if the value is NaN.
+		 */
+		private static String number(double value)
+		{
+			return Double.isNaN(value) ? "null" : round(value);
+		}
+
+		/**
+		 * Write a JSON string literal.
+		 */
+		private static String string(String value)
+		{
+			StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+			for (int i = 0; i < value.length(); i++)
+			{
+				char c = value.charAt(i);
+				if (c == '"' || c == '\\')
+				{
+					sb.append('\\').append(c);
+				}
+				else if (c < 0x20)
+				{
+					sb.append(String.format("\\u%04x", (int) c));
+				}
+				else
+				{
+					sb.append(c);
+				}
+			}
+			return sb.append('"').toString();
+		}
+	}
+
+	/**
+	 * Round to two decimals like the interactive UI does.
+	 *
+	 * @param value the value to round
+	 * @return the rounded value, empty if the value is NaN (no values in the range)
+	 */
+	private static String round(double value)
+	{
+		if (Double.isNaN(value))
+		{
+			return "";
+		}
+		return String.valueOf(Math.round(value * 100.0) / 100.0);
+	}
+}
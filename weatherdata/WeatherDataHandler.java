@@ -13,7 +13,8 @@ import java.util.Map.Entry;
  * Projekt - Algoritmer och datastrukturer 2IS206
  * 
  * Retrieves temperature data from a weather station csv file. Class stores the
- * data in a Tree and also contains methods to search in the data.
+ * data in a Tree and searches in a sorted array copy of it (DataSnapshot).
+ * Contains methods to search in the data.
  * 
  * @author Viktor Lundberg, vilu6614
  * @version 1.7, 2021-03-19
@@ -28,37 +29,64 @@ public class WeatherDataHandler
 	 */
 	private TreeMap<LocalDateTime, MeasurePoint> dataMap = new TreeMap<>();
 
+	/**
+	 * Array copy of dataMap with cached bounds, so that queries never have to look
+	 * up the first and last keys in the tree. The array holds references to the
+	 * same MeasurePoints as the map, so it costs one reference per measure, not a
+	 * second copy of the data. Null after a load until the next query builds it,
+	 * use currentSnapshot() to read it.
+	 */
+	private volatile DataSnapshot snapshot = null;
+
 	/**
 	 * Load weather data from file. Create MeasurePoint objects and store in
-	 * TreeMap.
+	 * TreeMap. Nothing is stored if the file can not be read to the end.
 	 * 
 	 * @param filePath path to file with weather data
 	 * @throws IOException if there is a problem while reading the file
 	 */
 	public void loadData(String filePath) throws IOException
 	{
-		try
+		// Read the whole file first so a failed read does not leave half a file in
+		// the map
+		List<MeasurePoint> loaded = readFile(filePath);
+
+		// Whole file read, store in Map
+		for (MeasurePoint currentMeasure : loaded)
 		{
-			// Create a BufferedReader
-			String line;
-			BufferedReader reader = new BufferedReader(new FileReader(filePath));
+			dataMap.put(currentMeasure.getDateTime(), currentMeasure);
+		}
+		// The snapshot is out of date. It is rebuilt by the next query, so loading
+		// several files in a row copies the map only once.
+		snapshot = null;
+	}
+
+	/**
+	 * Read all MeasurePoints from a file, in file order.
+	 * 
+	 * @param filePath path to file with weather data
+	 * @return the MeasurePoints
+	 * @throws IOException if there is a problem while reading the file
+	 */
+	private List<MeasurePoint> readFile(String filePath) throws IOException
+	{
+		List<MeasurePoint> loaded = new ArrayList<>();
 
+		// Create a BufferedReader, closed also if a line can not be parsed
+		try (BufferedReader reader = new BufferedReader(new FileReader(filePath)))
+		{
+			String line;
+			MeasurePoint previous = null;
 			// As long as next tuple in BufferedReader is not empty, we have data to read
 			while ((line = reader.readLine()) != null)
 			{
-				// Split into array of size = 4 with delimiter ";". Create MeasurePoint objects,
-				// store in Map.
-				String[] splitted = line.split(";", 4);
-				MeasurePoint currentMeasure = new MeasurePoint(splitted);
-				dataMap.put(currentMeasure.getDateTime(), currentMeasure);
+				// Create MeasurePoint objects straight from the line, the previous one lets
+				// the lines of a day share one date.
+				previous = MeasurePoint.parse(line, previous);
+				loaded.add(previous);
 			}
-			reader.close();
-		}
-		catch (IOException e)
-		{
-			e.printStackTrace();
-			System.out.println("Something went wrong reading the file");
 		}
+		return loaded;
 	}
 
 	// @formatter:off
@@ -77,76 +105,87 @@ public class WeatherDataHandler
 	// @formatter:on
 	public List<String> averageTemperatures(LocalDate dateFrom, LocalDate dateTo)
 	{
-		// Check that the user has entered dates that is present in the dataset
+		return averageTemperatures(planQuery(dateFrom, dateTo, false));
+	}
+
+	/**
+	 * Same as {@link #averageTemperatures(LocalDate, LocalDate)} for a range that
+	 * has already been planned with
+	 * {@link #planQuery(LocalDate, LocalDate, boolean)}.
+	 * 
+	 * @param plan the planned range
+	 * @return empty list if the plan is not valid
+	 */
+	public List<String> averageTemperatures(QueryPlan plan)
+	{
+		// Collect the streamed averages as rounded strings
+		List<String> results = new ArrayList<>();
+		averageTemperatures(plan, new ResultSink()
+		{
+			@Override
+			public void averageTemperature(LocalDate date, double average)
+			{
+				double rounded = Math.round(average * 100.0) / 100.0;
+				results.add(date + " average temperature: " + rounded + " degrees Celsius");
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * Stream the average temperature for each date in a planned range to a sink,
+	 * sorted by date (ascending). Nothing is written if the plan is not valid.
+	 * 
+	 * @param plan the planned range
+	 * @param sink receives one average per date
+	 */
+	public void averageTemperatures(QueryPlan plan, ResultSink sink)
+	{
+		// Check that the plan is valid, i.e. the dates are present in the dataset
 		// If it's not, return.
-		if (!isDateInData(dateFrom, dateTo))
+		if (!plan.isValid())
 		{
-			// Return empty list because we didn't do anything
-			List<String> empty = new ArrayList<>();
-			return empty;
+			return;
 		}
-		// Else, run the method
-		else
-		{
-			// Get a smaller subtree to iterate over from getSubTree method
-			Map<LocalDateTime, MeasurePoint> subTree = getSubTree(dataMap, dateFrom, dateTo);
+		// The range is already resolved to offsets in the snapshot
+		DataSnapshot data = plan.getSnapshot();
+		int toIndex = plan.getToIndex();
 
-			// We iterate over the data and add what we find to a new tree that we use to
-			// calculate the average values from. The temperature data is added in stack for
-			// simplicity because push / pull operations is fast and order does not matter
-			// in this case.
-			Map<LocalDate, Stack<Double>> calcTree = new TreeMap<>();
-			for (Map.Entry<LocalDateTime, MeasurePoint> entry : subTree.entrySet())
-			{
-				// Get data and add to tree
-				LocalDate date = entry.getValue().getDate();
-				double temp = entry.getValue().getTemperature();
+		// The data is sorted by dateTime so all measures of a date are next to each
+		// other. Find the block of each date and hand its average to the sink right
+		// away, no tree needed.
+		int blockStart = plan.getFromIndex();
+		for (int i = blockStart; i < toIndex; i++)
+		{
+			LocalDate date = data.get(i).getDate();
 
-				// Date does not exist yet in tree, new date to add
-				if (!calcTree.containsKey(date))
-				{
-					// Create new stack for the date and push temperature to stack. Put in tree
-					Stack<Double> temperatures = new Stack<>();
-					temperatures.push(temp);
-					calcTree.put(date, temperatures);
-				}
-				// Date already existed in tree, just update the stack
-				else if (calcTree.containsKey(date))
-				{
-					calcTree.get(date).push(temp);
-				}
-			}
-			// Iterate over the previous tree, calculate average temperature for the date
-			// and add to a results list. ArrayList is chosen because navigating in the list
-			// is fast and we know the size so it will not be full.
-			List<String> results = new ArrayList<>(calcTree.size());
-			for (Map.Entry<LocalDate, Stack<Double>> entry : calcTree.entrySet())
+			// Last measure of the block when the next one has another date
+			if (i + 1 == toIndex || !data.get(i + 1).getDate().equals(date))
 			{
-				// Get average value from calcAverageOfStack method and round it
-				double average = calcAverageOfStack(entry.getValue());
-				double rounded = Math.round(average * 100.0) / 100.0;
-				results.add(entry.getKey() + " average temperature: " + rounded + " degrees Celsius");
+				sink.averageTemperature(date, calcAverageOfBlock(data, blockStart, i + 1));
+				blockStart = i + 1;
 			}
-			// Return the list
-			return results;
 		}
 	}
 
 	/**
-	 * Calculates the average value of all values in the stack
+	 * Calculates the average temperature of a block of measures. The sum is taken
+	 * from the last measure to the first, the order the values used to be popped
+	 * from a stack in, so that rounded averages stay the same.
 	 * 
-	 * @param stack to calculate from
-	 * @return the sum
+	 * @param data  snapshot to calculate from
+	 * @param begin first index inclusive
+	 * @param end   last index exclusive
+	 * @return the average
 	 */
-	private double calcAverageOfStack(Stack<Double> stack)
+	private double calcAverageOfBlock(DataSnapshot data, int begin, int end)
 	{
-		int size = stack.size();
 		double result = 0;
-		while (!stack.empty())
+		for (int i = end - 1; i >= begin; i--)
 		{
-			result += stack.pop();
+			result += data.get(i).getTemperature();
 		}
-		return (result / size);
+		return (result / (end - begin));
 	}
 
 	// @formatter:off
@@ -167,57 +206,88 @@ public class WeatherDataHandler
 	// @formatter:on
 	public List<String> missingValues(LocalDate dateFrom, LocalDate dateTo)
 	{
-		// Check that the user has entered dates that is present in the dataset
+		return missingValues(planQuery(dateFrom, dateTo, false));
+	}
+
+	/**
+	 * Same as {@link #missingValues(LocalDate, LocalDate)} for a range that
+	 * has already been planned with
+	 * {@link #planQuery(LocalDate, LocalDate, boolean)}.
+	 * 
+	 * @param plan the planned range
+	 * @return empty list if the plan is not valid
+	 */
+	public List<String> missingValues(QueryPlan plan)
+	{
+		// Collect the streamed dates as strings
+		List<String> results = new ArrayList<>();
+		missingValues(plan, new ResultSink()
+		{
+			@Override
+			public void missingValues(LocalDate date, int missing)
+			{
+				results.add(date + " missing " + missing + " values");
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * Stream the number of missing values for each date in a planned range to a
+	 * sink, sorted by number of missing values (descending). Nothing is written if
+	 * the plan is not valid.
+	 * 
+	 * @param plan the planned range
+	 * @param sink receives one count per date
+	 */
+	public void missingValues(QueryPlan plan, ResultSink sink)
+	{
+		// Check that the plan is valid, i.e. the dates are present in the dataset
 		// If it's not, return.
-		if (!isDateInData(dateFrom, dateTo))
+		if (!plan.isValid())
 		{
-			// Return empty list because we didn't do anything
-			List<String> empty = new ArrayList<>();
-			return empty;
+			return;
 		}
-		// Else, run the method
-		else
+		// The range is already resolved to offsets in the snapshot
+		DataSnapshot data = plan.getSnapshot();
+		int toIndex = plan.getToIndex();
+
+		// To search for missing values we assume all values are missing by default.
+		// Whenever we find a value, we update our hypothesis for the current date.
+		// Create a LinkedHashMap and iterate over the range in the array.
+		// LinkedHashMap is important because it remembers the order in which we put
+		// the elements.
+		Map<LocalDate, Integer> missingValues = new LinkedHashMap<>();
+		for (int i = plan.getFromIndex(); i < toIndex; i++)
 		{
-			// Get a smaller subtree to iterate over from getSubTree method
-			Map<LocalDateTime, MeasurePoint> subTree = getSubTree(dataMap, dateFrom, dateTo);
+			MeasurePoint point = data.get(i);
+			// Get the date and add to the map. Update assumption.
+			LocalDate date = point.getDate();
+			int change = 1;
+			int assumedMissing = 24;
 
-			// To search for missing values we assume all values are missing by default.
-			// Whenever we find a value, we update our hypothesis for the current date.
-			// Create a LinkedHashMap and iterate over tree. LinkedHashMap is important
-			// because it remembers the order in which we put the elements.
-			Map<LocalDate, Integer> missingValues = new LinkedHashMap<>();
-			for (Map.Entry<LocalDateTime, MeasurePoint> entry : subTree.entrySet())
+			// Date does not exist yet in map, new date to add
+			if (!missingValues.containsKey(date))
 			{
-				// Get the date and add to the tree. Update assumption.
-				LocalDate date = entry.getValue().getDate();
-				int change = 1;
-				int assumedMissing = 24;
-
-				// Date does not exist yet in tree, new date to add
-				if (!missingValues.containsKey(date))
-				{
-					missingValues.put(date, assumedMissing - change);
-				}
-				// Date already existed just update the index
-				else if (missingValues.containsKey(date))
-				{
-					int prevMissing = missingValues.get(date);
-					missingValues.replace(date, (prevMissing -= change));
-				}
+				missingValues.put(date, assumedMissing - change);
 			}
-			// Now we have a map with key = LocalDate and value = missing values. Next step
-			// is to sort our results. Because we took our data from a TreeMap and put in
-			// the LinkedHashMap we know the map is currently sorted by Date ascending.
-			// Use sortMapByValues method. true means sort by value descending
-			Map<LocalDate, Integer> sorted = sortMapByValues(missingValues, true);
-			// Iterate over the map and add results to list.
-			List<String> results = new ArrayList<>(sorted.size());
-			for (Map.Entry<LocalDate, Integer> entry : sorted.entrySet())
+			// Date already existed just update the index
+			else if (missingValues.containsKey(date))
 			{
-				results.add(entry.getKey() + " missing " + entry.getValue() + " values");
+				int prevMissing = missingValues.get(date);
+				missingValues.replace(date, (prevMissing -= change));
 			}
-			// Return the list
-			return results;
+		}
+		// Now we have a map with key = LocalDate and value = missing values. Next step
+		// is to sort our results. Because the array is sorted by dateTime and we put
+		// the dates in the LinkedHashMap in that order, we know the map is currently
+		// sorted by Date ascending.
+		// Use sortMapByValues method. true means sort by value descending
+		Map<LocalDate, Integer> sorted = sortMapByValues(missingValues, true);
+		// Hand the sorted dates to the sink
+		for (Map.Entry<LocalDate, Integer> entry : sorted.entrySet())
+		{
+			sink.missingValues(entry.getKey(), entry.getValue());
 		}
 	}
 
@@ -268,57 +338,90 @@ public class WeatherDataHandler
 	// @formatter:on
 	public List<String> approvedValues(LocalDate dateFrom, LocalDate dateTo)
 	{
-		// Check that the user has entered dates that is present in the dataset
+		return approvedValues(planQuery(dateFrom, dateTo, false));
+	}
+
+	/**
+	 * Same as {@link #approvedValues(LocalDate, LocalDate)} for a range that
+	 * has already been planned with
+	 * {@link #planQuery(LocalDate, LocalDate, boolean)}.
+	 * 
+	 * @param plan the planned range
+	 * @return empty list if the plan is not valid
+	 */
+	public List<String> approvedValues(QueryPlan plan)
+	{
+		// Standard size list. It will only contain one value anyway.
+		List<String> results = new ArrayList<>();
+		approvedValues(plan, new ResultSink()
+		{
+			@Override
+			public void approvedValues(LocalDate dateFrom, LocalDate dateTo, double approved)
+			{
+				// Format results
+				NumberFormat percentageFormat = NumberFormat.getPercentInstance();
+				percentageFormat.setMinimumFractionDigits(2);
+				results.add("Approved values between " + dateFrom + " and " + dateTo + ": "
+						+ percentageFormat.format(approved));
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * Stream the share of approved values in a planned range to a sink. Nothing is
+	 * written if the plan is not valid.
+	 * 
+	 * @param plan the planned range
+	 * @param sink receives the period and the share of approved values
+	 */
+	public void approvedValues(QueryPlan plan, ResultSink sink)
+	{
+		// Check that the plan is valid, i.e. the dates are present in the dataset
 		// If it's not, return.
-		if (!isDateInData(dateFrom, dateTo))
+		if (!plan.isValid())
 		{
-			// Return empty list because we didn't do anything
-			List<String> empty = new ArrayList<>();
-			return empty;
+			return;
 		}
-		// Else, run the method
-		else
-		{
-			// Get a smaller subtree to iterate over from getSubTree method
-			Map<LocalDateTime, MeasurePoint> subTree = getSubTree(dataMap, dateFrom, dateTo);
-
-			// Standard size list. It will only contain one value anyway.
-			List<String> results = new ArrayList<>();
+		// The range is already resolved to offsets in the snapshot
+		DataSnapshot data = plan.getSnapshot();
+		int toIndex = plan.getToIndex();
 
-			// Variables to calculate
-			double approved = 0;
-			double notApproved = 0;
+		// Variables to calculate
+		double approved = 0;
+		double notApproved = 0;
 
-			// Iterate over the data and search for approved values
-			for (Map.Entry<LocalDateTime, MeasurePoint> entry : subTree.entrySet())
+		// Iterate over the data and search for approved values
+		for (int i = plan.getFromIndex(); i < toIndex; i++)
+		{
+			MeasurePoint point = data.get(i);
+			// If isApproved returns true, we have an approved value
+			if (point.isApproved())
 			{
-				// If isApproved returns true, we have an approved value
-				if (entry.getValue().isApproved())
-				{
-					approved++;
-				}
-				// Otherwise it is not approved
-				else
-				{
-					notApproved++;
-				}
+				approved++;
+			}
+			// Otherwise it is not approved
+			else
+			{
+				notApproved++;
 			}
-			// Format results
-			double approvedPercentage = approved / (approved + notApproved);
-			NumberFormat percentageFormat = NumberFormat.getPercentInstance();
-			percentageFormat.setMinimumFractionDigits(2);
-
-			// Add to list
-			results.add("Approved values between " + dateFrom + " and " + dateTo + ": "
-					+ percentageFormat.format(approvedPercentage));
-			// Return list
-			return results;
 		}
+		sink.approvedValues(plan.getDateFrom(), plan.getDateTo(), approved / (approved + notApproved));
+	}
+
+	/**
+	 * @return number of MeasurePoints loaded
+	 */
+	public int size()
+	{
+		return dataMap.size();
 	}
 
 	/**
 	 * Method that checks that the user is searching for dates that are present in
-	 * the dataset.
+	 * the dataset. Nothing is printed, use
+	 * {@link #planQuery(LocalDate, LocalDate, boolean)} to find out why a range was
+	 * rejected.
 	 * 
 	 * @param dateFrom (date to search from inclusive)
 	 * @param dateTo   (date to search to inclusive)
@@ -326,55 +429,40 @@ public class WeatherDataHandler
 	 */
 	public boolean isDateInData(LocalDate dateFrom, LocalDate dateTo)
 	{
-		// Find out first and last date
-		LocalDateTime first = dataMap.firstKey();
-		LocalDateTime last = dataMap.lastKey();
+		return planQuery(dateFrom, dateTo, false).isValid();
+	}
 
-		// End date is before start date
-		if (dateFrom.isAfter(dateTo))
-		{
-			System.out.println("End date appears to be before start date. Try again.");
-			return false;
-		}
-		// Start date outside of dataset (before)
-		else if (first.toLocalDate().isAfter(dateFrom))
-		{
-			System.out.println(
-					"Start date appears to be before first available data. First data in dataset: " + first.toString());
-			return false;
-		}
-		// Start date outside of dataset (after)
-		else if (last.toLocalDate().isBefore(dateFrom))
-		{
-			System.out.println(
-					"Start date appears to be after the last available data. Last data in dataset: " + last.toString());
-			return false;
-		}
-		// End date outside of dataset (after)
-		else if (last.toLocalDate().isBefore(dateTo))
-		{
-			System.out.println(
-					"End date appears to be after the last available data. Last data in dataset: " + last.toString());
-			return false;
-		}
-		// If none of these conditions before were met, return true.
-		return true;
+	/**
+	 * Validate a date range against the current data and resolve it to offsets in
+	 * the data. The bounds of the dataset are cached per load, so planning costs
+	 * two binary searches and no console output.
+	 * 
+	 * @param dateFrom start date (YYYY-MM-DD) inclusive
+	 * @param dateTo   end date (YYYY-MM-DD) inclusive
+	 * @param clamp    true = shrink a range reaching outside the dataset to the
+	 *                 available data. false = reject it
+	 * @return the query plan, check isValid() before using it
+	 */
+	public QueryPlan planQuery(LocalDate dateFrom, LocalDate dateTo, boolean clamp)
+	{
+		return currentSnapshot().plan(dateFrom, dateTo, clamp);
 	}
 
 	/**
-	 * Method returns a SortedMap subTree from the original TreeMap
+	 * Return the snapshot of the loaded data, built from dataMap if there has
+	 * been a load since the last query.
 	 * 
-	 * @param map      TreeMap to get subTree from
-	 * @param fromKey, first date to get subTree from. inclusive
-	 * @param toKey,   last date to get subTree from. inclusive
-	 * @return the new SortedMap
+	 * @return the snapshot
 	 */
-	private SortedMap<LocalDateTime, MeasurePoint> getSubTree(TreeMap<LocalDateTime, MeasurePoint> map,
-			LocalDate fromKey, LocalDate toKey)
+	private DataSnapshot currentSnapshot()
 	{
-		SortedMap<LocalDateTime, MeasurePoint> subTree = map.subMap(fromKey.atStartOfDay(),
-				toKey.plusDays(1).atStartOfDay());
-		return subTree;
+		DataSnapshot current = snapshot;
+		if (current == null)
+		{
+			current = new DataSnapshot(dataMap.values());
+			snapshot = current;
+		}
+		return current;
 	}
 
 }
\ No newline at end of file
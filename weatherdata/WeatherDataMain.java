@@ -1,5 +1,8 @@
 package algo.weatherdata;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
  * Simple application for retrieving and presenting temperature data from a
  * weather station file.
@@ -10,10 +13,17 @@ public class WeatherDataMain
 	/**
 	 * Program entry point.
 	 * 
-	 * @param args optional argument for path to weather data file
+	 * @param args optional argument for path to weather data file, or --batch
+	 *             followed by the arguments for {@link WeatherDataBatch}
 	 */
 	public static void main(String[] args)
 	{
+		// Non-interactive mode for scripts, exit with the result of the batch
+		if (args.length > 0 && args[0].equals("--batch"))
+		{
+			String[] batchArgs = Arrays.copyOfRange(args, 1, args.length);
+			System.exit(new WeatherDataBatch(System.in, System.out, System.err).run(batchArgs));
+		}
 		WeatherDataHandler weatherData = new WeatherDataHandler();
 		// Update file path here
 		String fileName = "/Users/viktorlundberg/eclipse-workspace/UU_algo_data_vecka_9_projekt/src/algo/smhi-opendata.csv";
@@ -24,6 +34,16 @@ public class WeatherDataMain
 		try
 		{
 			weatherData.loadData(fileName);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			e.printStackTrace();
+			System.out.println("Something went wrong reading the file");
+			System.out.println("Closing program ...");
+			return;
+		}
+		try
+		{
 			new WeatherDataUI(weatherData).startUI();
 		}
 		catch (Exception e)
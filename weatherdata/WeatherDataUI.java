@@ -135,7 +135,7 @@ public class WeatherDataUI
 		System.out.print("End date (will be included)\n");
 		LocalDate dateTo = getDateInput();
 
-		presentResult(_weatherData.averageTemperatures(dateFrom, dateTo));
+		presentResult(_weatherData.averageTemperatures(planQuery(dateFrom, dateTo)));
 	}
 
 	/**
@@ -150,7 +150,7 @@ public class WeatherDataUI
 		System.out.print("End date (will be included)\n");
 		LocalDate dateTo = getDateInput();
 
-		presentResult(_weatherData.missingValues(dateFrom, dateTo));
+		presentResult(_weatherData.missingValues(planQuery(dateFrom, dateTo)));
 
 	}
 
@@ -166,7 +166,24 @@ public class WeatherDataUI
 		System.out.print("End date (will be included)\n");
 		LocalDate dateTo = getDateInput();
 
-		presentResult(_weatherData.approvedValues(dateFrom, dateTo));
+		presentResult(_weatherData.approvedValues(planQuery(dateFrom, dateTo)));
+	}
+
+	/**
+	 * Plan a query for the two dates and tell the user if the dates were rejected.
+	 * 
+	 * @param dateFrom start date (will be included)
+	 * @param dateTo   end date (will be included)
+	 * @return the query plan
+	 */
+	private QueryPlan planQuery(LocalDate dateFrom, LocalDate dateTo)
+	{
+		QueryPlan plan = _weatherData.planQuery(dateFrom, dateTo, false);
+		if (!plan.isValid())
+		{
+			System.out.println(plan.getMessage());
+		}
+		return plan;
 	}
 
 	/**